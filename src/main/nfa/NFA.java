@@ -147,30 +147,31 @@ public class NFA {
 
     /**
      * Helper method that prints a visual representation of the NFA in the
-     * console.
+     * console. For large NFAs, or for DOT/JSON output, use NFAExporter.
      */
     public String toString(String title) {
-        String result = "--------" + title + "-----------";
+        var result = new StringBuilder();
+        result.append("--------").append(title).append("-----------");
         for (State state: this.getData().keySet()) {
-            result += "\n" + state.getName() + "\t"; 
+            result.append("\n").append(state.getName()).append("\t"); 
             for (Character symbol: this.getData().get(state).keySet()) {
-                result += "[" + symbol + ":" + this.transitionSetToString(this.getData().get(state).get(symbol)) + "]";
+                result.append("[").append(symbol).append(":");
+                this.appendTransitionSet(result, this.getData().get(state).get(symbol));
+                result.append("]");
             }   
         }        
-        result += "\n" + "--------------------------------------";
-        return result;
+        result.append("\n").append("--------------------------------------");
+        return result.toString();
     }
     
     /**
-     * Returns a string representation of a HashSet of states. Useful
-     * for debugging. 
+     * Appends a string representation of a HashSet of states to the given
+     * StringBuilder. Useful for debugging. 
      */
-    private String transitionSetToString(HashSet<State> states) {
-        String result = ""; 
+    private void appendTransitionSet(StringBuilder result, HashSet<State> states) {
         for (State state: states) {
-            result += " " + state.getName();           
+            result.append(" ").append(state.getName());           
         }
-        return result;
     }
     
     /**
@@ -319,7 +320,11 @@ public class NFA {
 
         public String getName() {
             return name;
-        }        
+        }
+
+        public boolean isAccept() {
+            return accept;
+        }
     }
     
     /**
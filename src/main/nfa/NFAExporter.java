@@ -0,0 +1,591 @@
+/**
+ * This class writes an NFA out as Graphviz DOT, as a compact text table, or
+ * as JSON. Output is streamed straight to a Writer or a WritableByteChannel,
+ * so even very large automata can be dumped without building the whole
+ * result in memory first.
+ * @author Kira Toal
+ */
+
+package main.nfa;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import main.nfa.NFA.State;
+
+public class NFAExporter {
+
+    // Fields
+    // ------------------------------------------------------------------------
+
+    private NFA nfa;
+    private boolean mergeRanges;
+    private int maxStates;
+
+    // Names and symbols are escaped differently depending on the format.
+    private enum Format {TEXT, DOT, JSON}
+
+    // Constructors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Creates an exporter that writes every state and lists each transition
+     * symbol individually.
+     * @param nfa The NFA to export.
+     */
+    public NFAExporter(NFA nfa) {
+        this(nfa, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param nfa The NFA to export.
+     * @param mergeRanges Whether transitions that share a destination should
+     *      be merged into symbol ranges (ex: "a-z" instead of "a,b,c,...").
+     * @param maxStates The maximum number of states to write. Any remaining
+     *      states are skipped and a short note is written in their place.
+     */
+    public NFAExporter(NFA nfa, boolean mergeRanges, int maxStates) {
+        if (maxStates < 0) {
+            throw new IllegalArgumentException("Maximum number of states cannot be negative.");
+        }
+        this.nfa = nfa;
+        this.mergeRanges = mergeRanges;
+        this.maxStates = maxStates;
+    }
+
+    // Methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Writes the NFA as a Graphviz DOT digraph. Accept states are drawn with
+     * a double circle and every edge between the same pair of states is
+     * collapsed into a single labeled edge. States that are only ever used
+     * as a destination are written after the rest, without any edges.
+     * Ex: n0 -> n1 [label="0,1"];
+     * @param out The destination. It is flushed but not closed.
+     */
+    public void writeDot(Writer out) throws IOException {
+        new Export(out, Format.DOT).run();
+    }
+
+    /**
+     * Writes the NFA as a text table with one state per line. Accept states
+     * are marked with a '*' and symbols that lead to the same set of states
+     * share a single cell. States that are only ever used as a destination
+     * get a line with no cells. Characters that would be mistaken for part
+     * of the table are escaped with a backslash: ',', '-', ':' and '\' in
+     * symbols, and ' ', ']', '*' and '\' in names. Control characters and
+     * unpaired surrogates are written as a backslash, 'u' and four hex
+     * digits.
+     * Ex: "s0*\t[0,1: s0 s1][λ: s2]"
+     * @param out The destination. It is flushed but not closed.
+     */
+    public void writeText(Writer out) throws IOException {
+        new Export(out, Format.TEXT).run();
+    }
+
+    /**
+     * Writes the NFA as a JSON object. States are referred to by their
+     * numeric id, since state names are not guaranteed to be unique. States
+     * that are only ever used as a destination get an entry with no
+     * transitions.
+     * Ex: {"alphabet":["0","1"],"states":[{"id":0,"name":"s0","accept":false,
+     *      "transitions":[{"symbols":["0","1"],"to":[1]}]}],"omitted":0}
+     * @param out The destination. It is flushed but not closed.
+     */
+    public void writeJson(Writer out) throws IOException {
+        new Export(out, Format.JSON).run();
+    }
+
+    /**
+     * Same as writeDot(Writer), but encodes the output as UTF-8 and writes
+     * it to a channel. The channel is not closed.
+     */
+    public void writeDot(WritableByteChannel out) throws IOException {
+        this.writeDot(Channels.newWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as writeText(Writer), but encodes the output as UTF-8 and writes
+     * it to a channel. The channel is not closed.
+     */
+    public void writeText(WritableByteChannel out) throws IOException {
+        this.writeText(Channels.newWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as writeJson(Writer), but encodes the output as UTF-8 and writes
+     * it to a channel. The channel is not closed.
+     */
+    public void writeJson(WritableByteChannel out) throws IOException {
+        this.writeJson(Channels.newWriter(out, StandardCharsets.UTF_8));
+    }
+
+    // Subclasses
+    // ------------------------------------------------------------------------
+
+    /**
+     * The Export subclass holds everything needed for a single call to one
+     * of the write methods: the output buffer, the state ids handed out so
+     * far, and scratch arrays that are reused from one state to the next so
+     * that writing a state allocates as little as possible.
+     */
+    private class Export {
+
+        private Writer out;
+        private Format format;
+        private char[] buffer = new char[8192];
+        private int length;
+        // Every state (including destinations that were never added with
+        //      addState()) gets a unique numeric id, since state names are
+        //      not guaranteed to be unique. The seen list holds the states in
+        //      id order.
+        private HashMap<State, Integer> ids = new HashMap<State, Integer>();
+        private ArrayList<State> seen = new ArrayList<State>();
+        // Scratch arrays, indexed by the position of a symbol in the sorted
+        //      symbols of the current state.
+        private char[] symbols = new char[16];
+        private ArrayList<HashSet<State>> sets = new ArrayList<HashSet<State>>();
+        private char[] group = new char[16];
+        private long[] keys = new long[16];
+        private int[] leader = new int[16];
+        private int[] next = new int[16];
+        private int[] tail = new int[16];
+
+        private Export(Writer out, Format format) {
+            this.out = out;
+            this.format = format;
+        }
+
+        /**
+         * Writes every state added to the NFA, then every state only used as
+         * a destination, until maxStates is reached.
+         */
+        private void run() throws IOException {
+            this.writeHeader();
+            int written = 0;
+            for (State state: nfa.getData().keySet()) {
+                if (written == maxStates) {break;}
+                this.writeState(state, written++);
+            }
+            // Once every added state has been written, every destination has
+            //      been given an id, so the remaining states are all in seen.
+            for (int i = 0; i < seen.size() && written < maxStates; i++) {
+                State state = seen.get(i);
+                if (!nfa.getData().containsKey(state)) {
+                    this.writeState(state, written++);
+                }
+            }
+            this.writeFooter(written == maxStates ? this.countStates() - written : 0);
+            this.flush();
+            out.flush();
+        }
+
+        private void writeHeader() throws IOException {
+            if (format == Format.DOT) {
+                this.put("digraph NFA {\n    rankdir=LR;\n");
+            } else if (format == Format.JSON) {
+                this.put("{\"alphabet\":[");
+                int n = this.sortSymbols(nfa.getAlphabet());
+                for (int i = 0; i < n; i++) {
+                    if (i > 0) {this.put(',');}
+                    this.put('"');
+                    this.writeEscaped(symbols[i]);
+                    this.put('"');
+                }
+                this.put("],\"states\":[");
+            }
+        }
+
+        private void writeFooter(int omitted) throws IOException {
+            if (format == Format.DOT) {
+                if (omitted > 0) {
+                    this.put("    // ");
+                    this.putInt(omitted);
+                    this.put(" more states omitted\n");
+                }
+                this.put("}\n");
+            } else if (format == Format.TEXT) {
+                if (omitted > 0) {
+                    this.put("... ");
+                    this.putInt(omitted);
+                    this.put(" more states omitted\n");
+                }
+            } else {
+                this.put("],\"omitted\":");
+                this.putInt(omitted);
+                this.put("}\n");
+            }
+        }
+
+        /**
+         * Writes a single state along with its transitions.
+         * @param index How many states have been written before this one.
+         */
+        private void writeState(State state, int index) throws IOException {
+            // The text table has no ids, and only needs them to find states
+            //      that are only used as a destination.
+            int id = format == Format.TEXT ? 0 : this.idOf(state);
+            if (format == Format.DOT) {
+                this.put("    n");
+                this.putInt(id);
+                this.put(" [label=\"");
+                this.writeName(state.getName());
+                this.put(state.isAccept() ? "\", shape=doublecircle];\n" : "\", shape=circle];\n");
+                this.writeEdges(state, id);
+            } else if (format == Format.TEXT) {
+                this.writeName(state.getName());
+                if (state.isAccept()) {this.put('*');}
+                this.put('\t');
+                this.writeCells(state);
+                this.put('\n');
+            } else {
+                if (index > 0) {this.put(',');}
+                this.put("\n{\"id\":");
+                this.putInt(id);
+                this.put(",\"name\":\"");
+                this.writeName(state.getName());
+                this.put(state.isAccept() ? "\",\"accept\":true" : "\",\"accept\":false");
+                this.put(",\"transitions\":[");
+                this.writeCells(state);
+                this.put("]}");
+            }
+        }
+
+        /**
+         * Writes one DOT edge per destination state, labeled with every
+         * symbol that leads there.
+         */
+        private void writeEdges(State state, int id) throws IOException {
+            int n = this.sortTransitions(state);
+            // Sort (destination id, symbol index) pairs so that the symbols
+            //      for each destination end up next to each other.
+            int pairs = 0;
+            for (int i = 0; i < n; i++) {
+                for (State dest: sets.get(i)) {
+                    if (pairs == keys.length) {keys = Arrays.copyOf(keys, pairs * 2);}
+                    keys[pairs++] = ((long) this.idOf(dest) << 32) | i;
+                }
+            }
+            Arrays.sort(keys, 0, pairs);
+            int start = 0;
+            while (start < pairs) {
+                int dest = (int) (keys[start] >>> 32);
+                int count = 0;
+                while (start < pairs && (int) (keys[start] >>> 32) == dest) {
+                    group[count++] = symbols[(int) keys[start++]];
+                }
+                this.put("    n");
+                this.putInt(id);
+                this.put(" -> n");
+                this.putInt(dest);
+                this.put(" [label=\"");
+                this.writeSymbols(count);
+                this.put("\"];\n");
+            }
+        }
+
+        /**
+         * Writes one text or JSON cell per distinct set of destination
+         * states, holding every symbol that leads to that set.
+         */
+        private void writeCells(State state) throws IOException {
+            int n = this.sortTransitions(state);
+            // Sort by the hash of each symbol's destination set so that equal
+            //      sets end up next to each other, then make the first symbol
+            //      of each group of equal sets its leader.
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) sets.get(i).hashCode() << 32) | i;
+            }
+            Arrays.sort(keys, 0, n);
+            for (int k = 0; k < n; k++) {
+                int i = (int) keys[k];
+                leader[i] = i;
+                for (int m = k - 1; m >= 0 && (keys[m] >>> 32) == (keys[k] >>> 32); m--) {
+                    int other = (int) keys[m];
+                    if (leader[other] == other && sets.get(other).equals(sets.get(i))) {
+                        leader[i] = other;
+                        break;
+                    }
+                }
+            }
+            // Chain the members of each group together in symbol order.
+            for (int i = 0; i < n; i++) {
+                next[i] = -1;
+                if (leader[i] == i) {
+                    tail[i] = i;
+                } else {
+                    next[tail[leader[i]]] = i;
+                    tail[leader[i]] = i;
+                }
+            }
+            boolean first = true;
+            for (int i = 0; i < n; i++) {
+                if (leader[i] != i) {continue;}
+                int count = 0;
+                for (int j = i; j != -1; j = next[j]) {
+                    group[count++] = symbols[j];
+                }
+                if (format == Format.TEXT) {
+                    this.put('[');
+                    this.writeSymbols(count);
+                    this.put(':');
+                    for (State dest: sets.get(i)) {
+                        if (!nfa.getData().containsKey(dest)) {this.idOf(dest);}
+                        this.put(' ');
+                        this.writeName(dest.getName());
+                    }
+                    this.put(']');
+                } else {
+                    if (!first) {this.put(',');}
+                    first = false;
+                    this.put("{\"symbols\":[");
+                    this.writeSymbols(count);
+                    this.put("],\"to\":[");
+                    boolean firstDest = true;
+                    for (State dest: sets.get(i)) {
+                        if (!firstDest) {this.put(',');}
+                        firstDest = false;
+                        this.putInt(this.idOf(dest));
+                    }
+                    this.put("]}");
+                }
+            }
+        }
+
+        /**
+         * Returns the numeric id of a state, assigning the next free id the
+         * first time the state is seen.
+         */
+        private int idOf(State state) {
+            Integer id = ids.get(state);
+            if (id == null) {
+                id = seen.size();
+                ids.put(state, id);
+                seen.add(state);
+            }
+            return id;
+        }
+
+        /**
+         * Counts every state in the NFA, including states that are only used
+         * as a destination. Only needed when maxStates cuts the output short.
+         */
+        private int countStates() {
+            var destinationOnly = new HashSet<State>();
+            for (var transitions: nfa.getData().values()) {
+                for (var dests: transitions.values()) {
+                    for (State dest: dests) {
+                        if (!nfa.getData().containsKey(dest)) {
+                            destinationOnly.add(dest);
+                        }
+                    }
+                }
+            }
+            return nfa.getData().size() + destinationOnly.size();
+        }
+
+        /**
+         * Sorts the symbols of a state's transitions into the symbols array,
+         * with the destination set of each symbol at the same index of sets.
+         * @return The number of symbols, which is 0 for a state that was
+         *      never added with addState().
+         */
+        private int sortTransitions(State state) {
+            var transitions = nfa.getData().get(state);
+            if (transitions == null) {return 0;}
+            int n = this.sortSymbols(transitions.keySet());
+            sets.clear();
+            for (int i = 0; i < n; i++) {
+                sets.add(transitions.get(symbols[i]));
+            }
+            return n;
+        }
+
+        /**
+         * Copies the given symbols into the symbols array in ascending order
+         * and makes sure the other scratch arrays are large enough.
+         * @return The number of symbols.
+         */
+        private int sortSymbols(Set<Character> from) {
+            int n = from.size();
+            if (n > symbols.length) {
+                int size = Math.max(n, symbols.length * 2);
+                symbols = new char[size];
+                group = new char[size];
+                keys = new long[size];
+                leader = new int[size];
+                next = new int[size];
+                tail = new int[size];
+            }
+            int i = 0;
+            for (Character symbol: from) {
+                symbols[i++] = symbol;
+            }
+            Arrays.sort(symbols, 0, n);
+            return n;
+        }
+
+        /**
+         * Writes the first count symbols of the group array separated by
+         * commas. If mergeRanges is set, runs of three or more consecutive
+         * symbols are written as a range.
+         * Ex: [a, b, c, d, x] -> "a-d,x"
+         * In JSON, each symbol or range is its own string, so a range is
+         * always three characters long and cannot be confused with a single
+         * symbol.
+         */
+        private void writeSymbols(int count) throws IOException {
+            int i = 0;
+            while (i < count) {
+                int j = i;
+                if (mergeRanges) {
+                    while (j + 1 < count && group[j + 1] == group[j] + 1) {
+                        j++;
+                    }
+                }
+                if (i > 0) {this.put(',');}
+                if (format == Format.JSON) {this.put('"');}
+                this.writeSymbol(group[i]);
+                if (j - i >= 2) {
+                    this.put('-');
+                    this.writeSymbol(group[j]);
+                    i = j + 1;
+                } else {
+                    i++;
+                }
+                if (format == Format.JSON) {this.put('"');}
+            }
+        }
+
+        /**
+         * Writes a single symbol. In text and DOT output, symbols that collide
+         * with the list separators are escaped with a backslash first.
+         * Ex: ',' -> "\,"
+         */
+        private void writeSymbol(char symbol) throws IOException {
+            if (format == Format.TEXT && "\\,-:".indexOf(symbol) >= 0) {
+                this.put('\\');
+            } else if (format == Format.DOT && "\\,-".indexOf(symbol) >= 0) {
+                // The backslash must itself be escaped inside a DOT string.
+                this.put("\\\\");
+            }
+            this.writeEscaped(symbol);
+        }
+
+        /**
+         * Writes a state name. Names that need no escaping, which is almost
+         * all of them, are written in one go.
+         */
+        private void writeName(String name) throws IOException {
+            int i = 0;
+            while (i < name.length() && !this.needsEscape(name.charAt(i))) {
+                i++;
+            }
+            if (i == name.length()) {
+                this.put(name);
+                return;
+            }
+            for (i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < name.length()
+                        && Character.isLowSurrogate(name.charAt(i + 1))) {
+                    this.put(c);
+                    this.put(name.charAt(++i));
+                } else if (format == Format.TEXT && " ]*\\".indexOf(c) >= 0) {
+                    this.put('\\');
+                    this.put(c);
+                } else {
+                    this.writeEscaped(c);
+                }
+            }
+        }
+
+        private boolean needsEscape(char c) {
+            if (c < 0x20 || Character.isSurrogate(c)) {return true;}
+            if (format == Format.TEXT) {return " ]*\\".indexOf(c) >= 0;}
+            return c == '"' || c == '\\' || (c == '&' && format == Format.DOT);
+        }
+
+        /**
+         * Writes a character so that it is valid inside a quoted DOT or JSON
+         * string, or on a line of the text table. DOT and JSON escape
+         * backslashes and quotes. Control characters and surrogates (callers
+         * pass valid surrogate pairs through themselves) cannot be written
+         * as-is: JSON and text write them as unicode escape sequences, while
+         * DOT has no such escape, so it writes them as HTML entities such as
+         * &#9; and must also escape '&'.
+         */
+        private void writeEscaped(char c) throws IOException {
+            if (c < 0x20 || Character.isSurrogate(c) || (c == '&' && format == Format.DOT)) {
+                if (format == Format.DOT) {
+                    this.put("&#");
+                    this.putInt(c);
+                    this.put(';');
+                } else {
+                    this.put('\\');
+                    this.put('u');
+                    for (int shift = 12; shift >= 0; shift -= 4) {
+                        this.put(Character.forDigit((c >> shift) & 0xf, 16));
+                    }
+                }
+            } else if (format != Format.TEXT && (c == '"' || c == '\\')) {
+                this.put('\\');
+                this.put(c);
+            } else {
+                this.put(c);
+            }
+        }
+
+        // Output buffer
+        // --------------------------------------------------------------------
+
+        private void put(char c) throws IOException {
+            if (length == buffer.length) {this.flush();}
+            buffer[length++] = c;
+        }
+
+        private void put(String s) throws IOException {
+            if (s.length() > buffer.length - length) {
+                this.flush();
+                if (s.length() > buffer.length) {
+                    out.write(s);
+                    return;
+                }
+            }
+            s.getChars(0, s.length(), buffer, length);
+            length += s.length();
+        }
+
+        /**
+         * Writes a non-negative int without going through Integer.toString().
+         */
+        private void putInt(int value) throws IOException {
+            if (buffer.length - length < 10) {this.flush();}
+            int start = length;
+            do {
+                buffer[length++] = (char) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            // The digits were written backwards.
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                char c = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = c;
+            }
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package test.nfa;
 
 import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import org.junit.AfterClass;
@@ -306,6 +311,343 @@ public class NFATests {
                 assertEquals(DFA.getData().get(state).get('1').toArray(new State[1])[0].getName(), "s4");
             }
         }
-    }   
+    }
+    
+    @Test
+    public void testExporter_dot() throws IOException {
+        // Test that parallel edges are merged into a single ranged edge, and
+        // that a state only used as a destination still gets its own node.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('a', 'b', 'c', 'd', 'z')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('a', s1));
+        myNFA.addTransition(s0, new NFA.Transition('b', s1));
+        myNFA.addTransition(s0, new NFA.Transition('c', s1));
+        myNFA.addTransition(s0, new NFA.Transition('d', s1));
+        myNFA.addTransition(s0, new NFA.Transition('z', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, true, Integer.MAX_VALUE).writeDot(out);
+        
+        assertEquals(out.toString(), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s0\", shape=circle];\n"
+                + "    n0 -> n1 [label=\"a-d,z\"];\n"
+                + "    n1 [label=\"s1\", shape=doublecircle];\n"
+                + "}\n");
+    }
+    
+    @Test
+    public void testExporter_text() throws IOException {
+        // Test that symbols with the same destinations share a cell, and that
+        // a state only used as a destination still gets its own line.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0', '1', 'λ')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", true);
+        NFA.State s1 = new NFA.State("s1", false);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('0', s1));
+        myNFA.addTransition(s0, new NFA.Transition('1', s1));
+        myNFA.addTransition(s0, new NFA.Transition('λ', s0));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA).writeText(out);
+        
+        assertEquals(out.toString(), "s0*\t[0,1: s1][λ: s0]\ns1\t\n");
+    }
+    
+    @Test
+    public void testExporter_json() throws IOException {
+        // Test that output is capped at the maximum number of states.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", false);
+        NFA.State s2 = new NFA.State("s2", true);
+        
+        myNFA.addState(s0);
+        myNFA.addState(s1);
+        myNFA.addState(s2);
+        
+        myNFA.addTransition(s0, new NFA.Transition('0', s1));
+        myNFA.addTransition(s1, new NFA.Transition('0', s2));
+        myNFA.addTransition(s2, new NFA.Transition('0', s0));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, false, 1).writeJson(out);
+        String json = out.toString();
+        
+        assertTrue(json.startsWith("{\"alphabet\":[\"0\"],\"states\":["));
+        assertTrue(json.contains("\"transitions\":[{\"symbols\":[\"0\"],\"to\":[1]}]"));
+        assertTrue(json.endsWith("],\"omitted\":2}\n"));
+    }
+    
+    @Test
+    public void testExporter_jsonDestinationOnly() throws IOException {
+        // Test that a state only used as a destination still gets an entry,
+        // and that it counts towards the maximum number of states.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0', '1')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('0', s1));
+        myNFA.addTransition(s0, new NFA.Transition('1', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA).writeJson(out);
+        
+        assertEquals(out.toString(), "{\"alphabet\":[\"0\",\"1\"],\"states\":[\n"
+                + "{\"id\":0,\"name\":\"s0\",\"accept\":false,\"transitions\":[{\"symbols\":[\"0\",\"1\"],\"to\":[1]}]},\n"
+                + "{\"id\":1,\"name\":\"s1\",\"accept\":true,\"transitions\":[]}],\"omitted\":0}\n");
+        
+        out = new StringWriter();
+        new NFAExporter(myNFA, false, 1).writeJson(out);
+        
+        assertEquals(out.toString(), "{\"alphabet\":[\"0\",\"1\"],\"states\":[\n"
+                + "{\"id\":0,\"name\":\"s0\",\"accept\":false,\"transitions\":[{\"symbols\":[\"0\",\"1\"],\"to\":[1]}]}],\"omitted\":1}\n");
+    }
+    
+    @Test
+    public void testExporter_dotCap() throws IOException {
+        // Test that the DOT output notes how many states were omitted.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('0', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, false, 1).writeDot(out);
+        
+        assertEquals(out.toString(), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s0\", shape=circle];\n"
+                + "    n0 -> n1 [label=\"0\"];\n"
+                + "    // 1 more states omitted\n"
+                + "}\n");
+    }
+    
+    @Test
+    public void testExporter_textRanges() throws IOException {
+        // Test that runs of three or more symbols are merged, but runs of two
+        // are not.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('a', 'b', 'c', 'd', 'x', 'y')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('a', s1));
+        myNFA.addTransition(s0, new NFA.Transition('b', s1));
+        myNFA.addTransition(s0, new NFA.Transition('c', s1));
+        myNFA.addTransition(s0, new NFA.Transition('d', s1));
+        myNFA.addTransition(s0, new NFA.Transition('x', s1));
+        myNFA.addTransition(s0, new NFA.Transition('y', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, true, Integer.MAX_VALUE).writeText(out);
+        
+        assertEquals(out.toString(), "s0\t[a-d,x,y: s1]\ns1*\t\n");
+    }
+    
+    @Test
+    public void testExporter_separators() throws IOException {
+        // Test that symbols used as separators are escaped.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList(',', '-', '.', 'a')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", false);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition(',', s1));
+        myNFA.addTransition(s0, new NFA.Transition('-', s1));
+        myNFA.addTransition(s0, new NFA.Transition('.', s1));
+        myNFA.addTransition(s0, new NFA.Transition('a', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, true, Integer.MAX_VALUE).writeText(out);
+        
+        assertEquals(out.toString(), "s0\t[\\,-.,a: s1]\ns1\t\n");
+        
+        out = new StringWriter();
+        new NFAExporter(myNFA).writeDot(out);
+        
+        assertEquals(out.toString(), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s0\", shape=circle];\n"
+                + "    n0 -> n1 [label=\"\\\\,,\\\\-,.,a\"];\n"
+                + "    n1 [label=\"s1\", shape=circle];\n"
+                + "}\n");
+    }
+    
+    @Test
+    public void testExporter_escaping() throws IOException {
+        // Test that quotes, backslashes and control characters are escaped
+        // for each format.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('\t', '"', '\\')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s\"0\\", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('\t', s0));
+        myNFA.addTransition(s0, new NFA.Transition('"', s0));
+        myNFA.addTransition(s0, new NFA.Transition('\\', s0));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA).writeDot(out);
+        
+        assertEquals(out.toString(), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s\\\"0\\\\\", shape=doublecircle];\n"
+                + "    n0 -> n0 [label=\"&#9;,\\\",\\\\\\\\\"];\n"
+                + "}\n");
+        
+        out = new StringWriter();
+        new NFAExporter(myNFA).writeJson(out);
+        
+        assertEquals(out.toString(), "{\"alphabet\":[\"\\u0009\",\"\\\"\",\"\\\\\"],\"states\":[\n"
+                + "{\"id\":0,\"name\":\"s\\\"0\\\\\",\"accept\":true,\"transitions\":"
+                + "[{\"symbols\":[\"\\u0009\",\"\\\"\",\"\\\\\"],\"to\":[0]}]}],\"omitted\":0}\n");
+    }
+    
+    @Test
+    public void testExporter_channel() throws IOException {
+        // Test that channel output is encoded as UTF-8 and fully flushed.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('λ')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s0", false);
+        NFA.State s1 = new NFA.State("s1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('λ', s1));
+        
+        NFAExporter exporter = new NFAExporter(myNFA);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        exporter.writeText(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "s0\t[λ: s1]\ns1*\t\n");
+        
+        bytes = new ByteArrayOutputStream();
+        exporter.writeDot(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s0\", shape=circle];\n"
+                + "    n0 -> n1 [label=\"λ\"];\n"
+                + "    n1 [label=\"s1\", shape=doublecircle];\n"
+                + "}\n");
+        
+        bytes = new ByteArrayOutputStream();
+        exporter.writeJson(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "{\"alphabet\":[\"λ\"],\"states\":[\n"
+                + "{\"id\":0,\"name\":\"s0\",\"accept\":false,\"transitions\":[{\"symbols\":[\"λ\"],\"to\":[1]}]},\n"
+                + "{\"id\":1,\"name\":\"s1\",\"accept\":true,\"transitions\":[]}],\"omitted\":0}\n");
+    }
+    
+    @Test
+    public void testExporter_omitted() throws IOException {
+        // Test that destination-only states hanging off skipped states are
+        // still counted as omitted, the same way in every format.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0', '1')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State a = new NFA.State("A", false);
+        NFA.State b = new NFA.State("B", false);
+        NFA.State c = new NFA.State("C", true);
+        NFA.State d = new NFA.State("D", true);
+        
+        myNFA.addState(a);
+        myNFA.addState(b);
+        
+        myNFA.addTransition(a, new NFA.Transition('0', b));
+        myNFA.addTransition(b, new NFA.Transition('0', c));
+        myNFA.addTransition(b, new NFA.Transition('1', d));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA, false, 0).writeText(out);
+        assertEquals(out.toString(), "... 4 more states omitted\n");
+        
+        out = new StringWriter();
+        new NFAExporter(myNFA, false, 0).writeDot(out);
+        assertEquals(out.toString(), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    // 4 more states omitted\n"
+                + "}\n");
+        
+        out = new StringWriter();
+        new NFAExporter(myNFA, false, 0).writeJson(out);
+        assertEquals(out.toString(), "{\"alphabet\":[\"0\",\"1\"],\"states\":[],\"omitted\":4}\n");
+        
+        for (int max = 1; max < 4; max++) {
+            out = new StringWriter();
+            new NFAExporter(myNFA, false, max).writeText(out);
+            assertTrue(out.toString().endsWith("... " + (4 - max) + " more states omitted\n"));
+            
+            out = new StringWriter();
+            new NFAExporter(myNFA, false, max).writeDot(out);
+            assertTrue(out.toString().endsWith("    // " + (4 - max) + " more states omitted\n}\n"));
+            
+            out = new StringWriter();
+            new NFAExporter(myNFA, false, max).writeJson(out);
+            assertTrue(out.toString().endsWith("],\"omitted\":" + (4 - max) + "}\n"));
+        }
+    }
+    
+    @Test
+    public void testExporter_textNames() throws IOException {
+        // Test that names which would be mistaken for part of the table are
+        // escaped in text output.
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList('0')), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("a]*\\", false);
+        NFA.State s1 = new NFA.State("s 1", true);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition('0', s1));
+        
+        StringWriter out = new StringWriter();
+        new NFAExporter(myNFA).writeText(out);
+        
+        assertEquals(out.toString(), "a\\]\\*\\\\\t[0: s\\ 1]\ns\\ 1*\t\n");
+    }
+    
+    @Test
+    public void testExporter_surrogates() throws IOException {
+        // Test that unpaired surrogates are escaped, while a valid surrogate
+        // pair in a name is written as-is, so UTF-8 encoding cannot fail.
+        char high = (char) 0xD83D;
+        char low = (char) 0xDE00;
+        String smile = new String(Character.toChars(0x1F600));
+        NFA myNFA = new NFA(new HashSet<>(Arrays.asList(high, low)), new HashMap<State, HashMap<Character, HashSet<State>>>());
+        NFA.State s0 = new NFA.State("s" + smile, false);
+        
+        myNFA.addState(s0);
+        
+        myNFA.addTransition(s0, new NFA.Transition(high, s0));
+        myNFA.addTransition(s0, new NFA.Transition(low, s0));
+        
+        NFAExporter exporter = new NFAExporter(myNFA);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        exporter.writeText(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "s" + smile + "\t[\\ud83d,\\ude00: s" + smile + "]\n");
+        
+        bytes = new ByteArrayOutputStream();
+        exporter.writeDot(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "digraph NFA {\n"
+                + "    rankdir=LR;\n"
+                + "    n0 [label=\"s" + smile + "\", shape=circle];\n"
+                + "    n0 -> n0 [label=\"&#55357;,&#56832;\"];\n"
+                + "}\n");
+        
+        bytes = new ByteArrayOutputStream();
+        exporter.writeJson(Channels.newChannel(bytes));
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "{\"alphabet\":[\"\\ud83d\",\"\\ude00\"],\"states\":[\n"
+                + "{\"id\":0,\"name\":\"s" + smile + "\",\"accept\":false,\"transitions\":"
+                + "[{\"symbols\":[\"\\ud83d\",\"\\ude00\"],\"to\":[0]}]}],\"omitted\":0}\n");
+    }
 }
-